@@ -12,16 +12,24 @@
 //              optimización de rutas logísticas usando Floyd-Warshall
 //==========================================================================
 import java.util.*;
+import java.util.stream.IntStream;
 import java.io.*;
 
 public class GrafoFloyd {
     //----------------------------------------------------------------------
     // ATRIBUTOS DE LA CLASE GRAFOFLOYD
     //----------------------------------------------------------------------
-    private Map<String, Integer> ciudadIndice;    // Mapea nombres de ciudades a índices numéricos
-    private List<String> ciudades;                // Lista ordenada de todas las ciudades del grafo
-    private double[][][] matriz;                  
-    private int numCiudades;                      
+    private Map<String, Integer> ciudadIndice;    // Mapea nombres de ciudades activas a sus handles (índices)
+    private List<String> ciudades;                // Nombre de cada handle; null si la ciudad fue eliminada
+    private Deque<Integer> handlesLibres;         // Handles de ciudades eliminadas, para reutilizarlos
+    private double[][][] matriz;                  // [clima][origen][destino], dimensionada a 'capacidad'
+    private List<CambioArista> bitacora;          // Cambios de aristas posteriores a versionBitacora
+    private long versionBitacora;                 // Resultados anteriores a esta versión no pueden usar la bitácora
+    private int numCiudades;                      // Ciudades activas
+    private int numVertices;                      // Handles asignados (incluye los libres)
+    private int capacidad;                        // Tamaño reservado de la matriz
+    private long version;                         // Contador de modificaciones del grafo
+    private int recalculosCompletos;              // Veces que se ejecutó el Floyd-Warshall completo O(V³)
     
     //----------------------------------------------------------------------
     // CONSTANTES PARA TIPOS DE CLIMA
@@ -32,6 +40,7 @@ public class GrafoFloyd {
     private static final int CLIMA_NIEVE = 2;      // Condiciones con nieve (mayor impacto)
     private static final int CLIMA_TORMENTA = 3;   // Condiciones de tormenta (máximo impacto)
     private static final double INFINITO = Double.MAX_VALUE;  // Representa rutas inexistentes
+    private static final int CAPACIDAD_INICIAL = 16;          // Capacidad mínima de la matriz
     
     //----------------------------------------------------------------------
     // CONSTRUCTOR DE LA CLASE GRAFOFLOYD
@@ -40,7 +49,15 @@ public class GrafoFloyd {
     public GrafoFloyd() {
         ciudadIndice = new HashMap<>();
         ciudades = new ArrayList<>();
+        handlesLibres = new ArrayDeque<>();
         numCiudades = 0;
+        numVertices = 0;
+        capacidad = 0;
+        version = 0;
+        matriz = new double[4][0][0];
+        bitacora = new ArrayList<>();
+        versionBitacora = 0;
+        recalculosCompletos = 0;
     }
     
     //----------------------------------------------------------------------
@@ -69,23 +86,25 @@ public class GrafoFloyd {
         ciudades = new ArrayList<>(ciudadesUnicas);
         Collections.sort(ciudades);  // Ordenar alfabéticamente para consistencia
         numCiudades = ciudades.size();
+        numVertices = numCiudades;
         
+        ciudadIndice = new HashMap<>();
+        handlesLibres = new ArrayDeque<>();
         for (int i = 0; i < numCiudades; i++) {
             ciudadIndice.put(ciudades.get(i), i);
         }
 
-        matriz = new double[4][numCiudades][numCiudades];
+        capacidad = Math.max(CAPACIDAD_INICIAL, numCiudades);
+        matriz = new double[4][capacidad][capacidad];
         for (int clima = 0; clima < 4; clima++) {
-            for (int i = 0; i < numCiudades; i++) {
-                for (int j = 0; j < numCiudades; j++) {
-                    if (i == j) {
-                        matriz[clima][i][j] = 0;  // Distancia de una ciudad a sí misma es 0
-                    } else {
-                        matriz[clima][i][j] = INFINITO;  // Inicialmente no hay conexiones
-                    }
-                }
+            for (int i = 0; i < capacidad; i++) {
+                Arrays.fill(matriz[clima][i], INFINITO);  // Inicialmente no hay conexiones
+                matriz[clima][i][i] = 0;                  // Distancia de una ciudad a sí misma es 0
             }
         }
+        version++;
+        bitacora.clear();
+        versionBitacora = version;  // Invalida resultados calculados antes de la carga
 
         // SEGUNDA PASADA: Llenar la matriz con los datos del archivo
         for (String[] partes : datos) {
@@ -109,11 +128,12 @@ public class GrafoFloyd {
     // Retorna: ResultadoFloyd con matrices de distancias y rutas
     //----------------------------------------------------------------------
     public ResultadoFloyd aplicarFloyd(int tipoClima) {
-        double[][] distancias = new double[numCiudades][numCiudades];
-        int[][] siguiente = new int[numCiudades][numCiudades];
+        recalculosCompletos++;
+        double[][] distancias = new double[numVertices][numVertices];
+        int[][] siguiente = new int[numVertices][numVertices];
 
-        for (int i = 0; i < numCiudades; i++) {
-            for (int j = 0; j < numCiudades; j++) {
+        for (int i = 0; i < numVertices; i++) {
+            for (int j = 0; j < numVertices; j++) {
                 distancias[i][j] = matriz[tipoClima][i][j];
                 if (i != j && matriz[tipoClima][i][j] != INFINITO) {
                     siguiente[i][j] = j;  
@@ -124,9 +144,9 @@ public class GrafoFloyd {
         }
 
         // ALGORITMO DE FLOYD-WARSHALL: Buscar rutas más cortas a través de nodos intermedios
-        for (int k = 0; k < numCiudades; k++) {           // k = nodo intermedio
-            for (int i = 0; i < numCiudades; i++) {       // i = nodo origen
-                for (int j = 0; j < numCiudades; j++) {   // j = nodo destino
+        for (int k = 0; k < numVertices; k++) {           // k = nodo intermedio
+            for (int i = 0; i < numVertices; i++) {       // i = nodo origen
+                for (int j = 0; j < numVertices; j++) {   // j = nodo destino
                     // Si existe ruta i->k y k->j, y es más corta que la ruta directa i->j
                     if (distancias[i][k] != INFINITO && 
                         distancias[k][j] != INFINITO &&
@@ -138,7 +158,180 @@ public class GrafoFloyd {
             }
         }
 
-        return new ResultadoFloyd(distancias, siguiente);
+        return new ResultadoFloyd(distancias, siguiente, tipoClima, version);
+    }
+
+    //----------------------------------------------------------------------
+    // ACTUALIZACIÓN INCREMENTAL DE FLOYD-WARSHALL
+    // Lleva un resultado previo al estado actual del grafo sin repetir el
+    // O(V³) completo:
+    //   - cada conexión nueva o más rápida entre ciudades ya cubiertas cuesta O(V²)
+    //   - cada ciudad agregada después del resultado cuesta O(V²)
+    // Se recalcula con aplicarFloyd si el resultado es de otro clima, si alguna
+    // conexión se hizo más lenta o se eliminó (incluida la eliminación de una
+    // ciudad), o si hay tantos cambios que el cálculo completo sale más barato.
+    //----------------------------------------------------------------------
+    public ResultadoFloyd actualizarFloyd(int tipoClima, ResultadoFloyd anterior) {
+        List<int[]> reducciones = aristasReducidas(tipoClima, anterior);
+        if (reducciones == null) {
+            return aplicarFloyd(tipoClima);
+        }
+
+        int n = anterior.distancias.length;
+        if (n == numVertices && reducciones.isEmpty()) {
+            return new ResultadoFloyd(anterior.distancias, anterior.siguiente, tipoClima, version);
+        }
+
+        // Se trabaja sobre copias: quien tenga el resultado anterior lo sigue viendo intacto
+        double[][] distancias = new double[numVertices][numVertices];
+        int[][] siguiente = new int[numVertices][numVertices];
+        for (int i = 0; i < n; i++) {
+            System.arraycopy(anterior.distancias[i], 0, distancias[i], 0, n);
+            System.arraycopy(anterior.siguiente[i], 0, siguiente[i], 0, n);
+        }
+
+        double[][] pesos = matriz[tipoClima];
+        // Conexiones nuevas o más rápidas entre ciudades ya cubiertas:
+        // d[i][j] = min(d[i][j], d[i][u] + w + d[v][j])
+        double[] haciaU = new double[n];
+        int[] primerPaso = new int[n];
+        double[] desdeV = new double[n];
+        for (int[] arista : reducciones) {
+            int u = arista[0];
+            int v = arista[1];
+            double w = pesos[u][v];
+            if (w >= distancias[u][v]) {
+                continue;  // Ya existía una ruta igual o más corta
+            }
+            for (int i = 0; i < n; i++) {
+                haciaU[i] = (i == u) ? 0 : distancias[i][u];
+                primerPaso[i] = (i == u) ? v : siguiente[i][u];
+                desdeV[i] = (i == v) ? 0 : distancias[v][i];
+            }
+            for (int i = 0; i < n; i++) {
+                if (haciaU[i] == INFINITO) {
+                    continue;
+                }
+                double base = haciaU[i] + w;
+                for (int j = 0; j < n; j++) {
+                    if (desdeV[j] != INFINITO && base + desdeV[j] < distancias[i][j]) {
+                        distancias[i][j] = base + desdeV[j];
+                        siguiente[i][j] = primerPaso[i];
+                    }
+                }
+            }
+        }
+
+        // Agregar cada vértice nuevo v sobre el cierre ya calculado de 0..v-1
+        for (int v = n; v < numVertices; v++) {
+            // Distancias hacia v: arista directa i->v o d[i][k] + w(k,v)
+            for (int i = 0; i < v; i++) {
+                distancias[i][v] = pesos[i][v];
+                siguiente[i][v] = (pesos[i][v] != INFINITO) ? v : -1;
+            }
+            for (int k = 0; k < v; k++) {
+                if (pesos[k][v] == INFINITO) {
+                    continue;
+                }
+                for (int i = 0; i < v; i++) {
+                    if (i != k && distancias[i][k] != INFINITO &&
+                        distancias[i][k] + pesos[k][v] < distancias[i][v]) {
+                        distancias[i][v] = distancias[i][k] + pesos[k][v];
+                        siguiente[i][v] = siguiente[i][k];
+                    }
+                }
+            }
+
+            // Distancias desde v: arista directa v->j o w(v,k) + d[k][j]
+            for (int j = 0; j < v; j++) {
+                distancias[v][j] = pesos[v][j];
+                siguiente[v][j] = (pesos[v][j] != INFINITO) ? j : -1;
+            }
+            for (int k = 0; k < v; k++) {
+                if (pesos[v][k] == INFINITO) {
+                    continue;
+                }
+                for (int j = 0; j < v; j++) {
+                    if (j != k && distancias[k][j] != INFINITO &&
+                        pesos[v][k] + distancias[k][j] < distancias[v][j]) {
+                        distancias[v][j] = pesos[v][k] + distancias[k][j];
+                        siguiente[v][j] = k;
+                    }
+                }
+            }
+            distancias[v][v] = pesos[v][v];
+            siguiente[v][v] = -1;
+            for (int k = 0; k < v; k++) {
+                // Sólo relevante si v tiene un lazo propio mayor que un ciclo v->k->v
+                if (distancias[v][k] != INFINITO && distancias[k][v] != INFINITO &&
+                    distancias[v][k] + distancias[k][v] < distancias[v][v]) {
+                    distancias[v][v] = distancias[v][k] + distancias[k][v];
+                    siguiente[v][v] = siguiente[v][k];
+                }
+            }
+
+            // Rutas entre vértices existentes que ahora mejoran pasando por v
+            for (int i = 0; i < v; i++) {
+                if (distancias[i][v] == INFINITO) {
+                    continue;
+                }
+                for (int j = 0; j < v; j++) {
+                    if (distancias[v][j] != INFINITO &&
+                        distancias[i][v] + distancias[v][j] < distancias[i][j]) {
+                        distancias[i][j] = distancias[i][v] + distancias[v][j];
+                        siguiente[i][j] = siguiente[i][v];
+                    }
+                }
+            }
+        }
+
+        return new ResultadoFloyd(distancias, siguiente, tipoClima, version);
+    }
+
+    // Aristas entre vértices del resultado que sólo se agregaron o acortaron desde que
+    // se calculó, como pares {origen, destino}; null si hace falta el cálculo completo
+    private List<int[]> aristasReducidas(int tipoClima, ResultadoFloyd anterior) {
+        if (anterior == null || anterior.tipoClima != tipoClima || anterior.version < versionBitacora) {
+            return null;
+        }
+        int n = anterior.distancias.length;
+        if (n > numVertices) {
+            return null;
+        }
+
+        // Peso que tenía cada arista cuando se calculó el resultado (el primer cambio posterior)
+        Map<Long, Double> pesoOriginal = new LinkedHashMap<>();
+        for (CambioArista cambio : bitacora) {
+            if (cambio.version <= anterior.version) {
+                continue;
+            }
+            if (cambio.pesosAnteriores == null) {
+                return null;  // Ciudad eliminada: las distancias pueden crecer
+            }
+            if (cambio.origen < n && cambio.destino < n) {
+                pesoOriginal.putIfAbsent((long) cambio.origen * capacidad + cambio.destino,
+                                         cambio.pesosAnteriores[tipoClima]);
+            }
+        }
+        if (pesoOriginal.size() > n) {
+            return null;  // Más de V cambios de O(V²) cuestan más que un O(V³)
+        }
+
+        List<int[]> reducciones = new ArrayList<>();
+        for (Map.Entry<Long, Double> entrada : pesoOriginal.entrySet()) {
+            int u = (int) (entrada.getKey() / capacidad);
+            int v = (int) (entrada.getKey() % capacidad);
+            if (matriz[tipoClima][u][v] > entrada.getValue()) {
+                return null;  // Conexión más lenta o eliminada
+            }
+            reducciones.add(new int[] {u, v});
+        }
+        return reducciones;
+    }
+
+    // Veces que se ha ejecutado el algoritmo completo (útil para verificar el camino incremental)
+    public int getRecalculosCompletos() {
+        return recalculosCompletos;
     }
     
     //----------------------------------------------------------------------
@@ -148,21 +341,28 @@ public class GrafoFloyd {
     //----------------------------------------------------------------------
     public List<String> obtenerCamino(String origen, String destino, int[][] siguiente) {
         // Verificar que ambas ciudades existen en el grafo
-        if (!ciudadIndice.containsKey(origen) || !ciudadIndice.containsKey(destino)) {
+        int i = obtenerIndice(origen);
+        int j = obtenerIndice(destino);
+        if (i == -1 || j == -1) {
             return null;
         }
 
-        int i = ciudadIndice.get(origen);
-        int j = ciudadIndice.get(destino);
-        
+        return obtenerCamino(i, j, siguiente);
+    }
+
+    // Variante por handle: evita búsquedas por nombre en consultas repetidas
+    public List<String> obtenerCamino(int origen, int destino, int[][] siguiente) {
+        int i = origen;
+        int j = destino;
+
         // Verificar que existe una ruta
-        if (siguiente[i][j] == -1) {
+        if (i < 0 || j < 0 || i >= siguiente.length || j >= siguiente.length || siguiente[i][j] == -1) {
             return null; // No hay camino
         }
 
         // Reconstruir el camino siguiendo la matriz de rutas
         List<String> camino = new ArrayList<>();
-        camino.add(origen);
+        camino.add(ciudades.get(i));
         
         while (i != j) {
             i = siguiente[i][j];
@@ -174,33 +374,31 @@ public class GrafoFloyd {
     
     //----------------------------------------------------------------------
     // MÉTODO PARA CALCULAR EL CENTRO DEL GRAFO
+    // Las ciudades eliminadas no participan en el cálculo
     //----------------------------------------------------------------------
     public String calcularCentro(double[][] distancias) {
-        double[] excentricidades = new double[numCiudades];
+        int n = Math.min(distancias.length, numVertices);
+        double minExcentricidad = INFINITO;
+        int indiceCentro = -1;
         
-        // Calcular la excentricidad de cada ciudad
-        for (int i = 0; i < numCiudades; i++) {
+        // Calcular la excentricidad de cada ciudad y quedarse con la mínima (centro del grafo)
+        for (int i = 0; i < n; i++) {
+            if (ciudades.get(i) == null) {
+                continue;
+            }
             double maxDistancia = 0;
-            for (int j = 0; j < numCiudades; j++) {
+            for (int j = 0; j < n; j++) {
                 if (i != j && distancias[i][j] != INFINITO) {
                     maxDistancia = Math.max(maxDistancia, distancias[i][j]);
                 }
             }
-            excentricidades[i] = maxDistancia;
-        }
-
-        // Encontrar el vértice con mínima excentricidad (centro del grafo)
-        double minExcentricidad = excentricidades[0];
-        int indiceCentro = 0;
-        
-        for (int i = 1; i < numCiudades; i++) {
-            if (excentricidades[i] < minExcentricidad) {
-                minExcentricidad = excentricidades[i];
+            if (indiceCentro == -1 || maxDistancia < minExcentricidad) {
+                minExcentricidad = maxDistancia;
                 indiceCentro = i;
             }
         }
 
-        return ciudades.get(indiceCentro);
+        return indiceCentro == -1 ? null : ciudades.get(indiceCentro);
     }
     
     //----------------------------------------------------------------------
@@ -220,11 +418,14 @@ public class GrafoFloyd {
         int indice1 = ciudadIndice.get(ciudad1);
         int indice2 = ciudadIndice.get(ciudad2);
 
+        double[] pesosAnteriores = pesosArista(indice1, indice2);
+
         // Agregar conexión para todas las condiciones climáticas
         matriz[CLIMA_NORMAL][indice1][indice2] = tiempoNormal;
         matriz[CLIMA_LLUVIA][indice1][indice2] = tiempoLluvia;
         matriz[CLIMA_NIEVE][indice1][indice2] = tiempoNieve;
         matriz[CLIMA_TORMENTA][indice1][indice2] = tiempoTormenta;
+        registrarCambio(indice1, indice2, pesosAnteriores);
     }
     
     //----------------------------------------------------------------------
@@ -242,10 +443,135 @@ public class GrafoFloyd {
         int indice1 = ciudadIndice.get(ciudad1);
         int indice2 = ciudadIndice.get(ciudad2);
 
+        double[] pesosAnteriores = pesosArista(indice1, indice2);
+
         // Eliminar conexión para todas las condiciones climáticas
         for (int clima = 0; clima < 4; clima++) {
             matriz[clima][indice1][indice2] = INFINITO;
         }
+        registrarCambio(indice1, indice2, pesosAnteriores);
+    }
+    
+    //----------------------------------------------------------------------
+    // MÉTODO PARA AGREGAR UNA CIUDAD EN TIEMPO DE EJECUCIÓN
+    // La ciudad reutiliza el handle de una ciudad eliminada si hay alguno y,
+    // si no, recibe uno nuevo; en ambos casos queda sin conexiones. Por eso
+    // un handle guardado antes de eliminar su ciudad puede pasar a ser de otra.
+    // La matriz crece duplicando su capacidad, no una fila por ciudad.
+    // Retorna: handle de la ciudad (el existente si ya estaba en el grafo)
+    //----------------------------------------------------------------------
+    public int agregarCiudad(String nombre) {
+        Integer existente = ciudadIndice.get(nombre);
+        if (existente != null) {
+            return existente;
+        }
+
+        int indice;
+        if (!handlesLibres.isEmpty()) {
+            indice = handlesLibres.pop();  // Su fila y columna quedaron en INFINITO al eliminarla
+            ciudades.set(indice, nombre);
+        } else {
+            asegurarCapacidad(numVertices + 1);
+            indice = numVertices++;
+            ciudades.add(nombre);
+        }
+        ciudadIndice.put(nombre, indice);
+        numCiudades++;
+
+        // Las celdas del vértice ya están en INFINITO (diagonal en 0);
+        // actualizarFloyd lo incorpora en O(V²) junto con las conexiones que se le agreguen
+        version++;
+        return indice;
+    }
+    
+    //----------------------------------------------------------------------
+    // MÉTODO PARA ELIMINAR UNA CIUDAD EN TIEMPO DE EJECUCIÓN
+    // Desconecta la ciudad en todos los climas y libera su handle para la
+    // próxima ciudad agregada. Los handles de las demás ciudades no cambian,
+    // y las matrices crecen con el máximo de ciudades activas, no con el
+    // total de ciudades que alguna vez se agregaron.
+    //----------------------------------------------------------------------
+    public void eliminarCiudad(String nombre) {
+        Integer indice = ciudadIndice.remove(nombre);
+        if (indice == null) {
+            System.out.println("La ciudad no existe en el grafo.");
+            return;
+        }
+
+        for (int clima = 0; clima < 4; clima++) {
+            for (int k = 0; k < numVertices; k++) {
+                matriz[clima][indice][k] = INFINITO;
+                matriz[clima][k][indice] = INFINITO;
+            }
+            matriz[clima][indice][indice] = 0;  // Deja el vértice como recién creado
+        }
+        ciudades.set(indice, null);
+        handlesLibres.push(indice);
+        numCiudades--;
+        registrarCambio(indice, indice, null);
+    }
+
+    // Duplica la capacidad de la matriz hasta que quepan 'requerida' ciudades
+    private void asegurarCapacidad(int requerida) {
+        if (requerida <= capacidad) {
+            return;
+        }
+        int nuevaCapacidad = Math.max(CAPACIDAD_INICIAL, capacidad);
+        while (nuevaCapacidad < requerida) {
+            nuevaCapacidad *= 2;
+        }
+
+        double[][][] nuevaMatriz = new double[4][nuevaCapacidad][nuevaCapacidad];
+        for (int clima = 0; clima < 4; clima++) {
+            for (int i = 0; i < nuevaCapacidad; i++) {
+                if (i < capacidad) {
+                    System.arraycopy(matriz[clima][i], 0, nuevaMatriz[clima][i], 0, capacidad);
+                    Arrays.fill(nuevaMatriz[clima][i], capacidad, nuevaCapacidad, INFINITO);
+                } else {
+                    Arrays.fill(nuevaMatriz[clima][i], INFINITO);
+                    nuevaMatriz[clima][i][i] = 0;
+                }
+            }
+        }
+        matriz = nuevaMatriz;
+        capacidad = nuevaCapacidad;
+    }
+
+    private double[] pesosArista(int origen, int destino) {
+        double[] pesos = new double[4];
+        for (int clima = 0; clima < 4; clima++) {
+            pesos[clima] = matriz[clima][origen][destino];
+        }
+        return pesos;
+    }
+
+    // Registra un cambio de arista para actualizarFloyd. pesosAnteriores == null marca un
+    // cambio que no admite actualización incremental. Los lazos (origen == destino) se tratan
+    // igual porque alteran la diagonal. La bitácora se vacía al superar V entradas: a partir
+    // de ahí un recálculo completo es más barato que aplicarla.
+    private void registrarCambio(int origen, int destino, double[] pesosAnteriores) {
+        if (bitacora.size() >= Math.max(CAPACIDAD_INICIAL, numVertices)) {
+            bitacora.clear();
+            versionBitacora = version;
+        }
+        version++;
+        bitacora.add(new CambioArista(version, origen, destino,
+                                      origen == destino ? null : pesosAnteriores));
+    }
+
+    // Entrada de la bitácora de cambios de aristas
+    private static class CambioArista {
+        final long version;
+        final int origen;
+        final int destino;
+        final double[] pesosAnteriores;  // Pesos por clima antes del cambio; null si no es incremental
+
+        CambioArista(long version, int origen, int destino, double[] pesosAnteriores) {
+            this.version = version;
+            this.origen = origen;
+            this.destino = destino;
+            this.pesosAnteriores = pesosAnteriores;
+        }
     }
     
     //----------------------------------------------------------------------
@@ -259,14 +585,22 @@ public class GrafoFloyd {
         // Encabezados de columna: nombres de ciudades
         System.out.print(String.format("%15s", ""));
         for (String ciudad : ciudades) {
-            System.out.print(String.format("%15s", ciudad));
+            if (ciudad != null) {
+                System.out.print(String.format("%15s", ciudad));
+            }
         }
         System.out.println();
 
-        // Filas: cada fila representa una ciudad origen
-        for (int i = 0; i < numCiudades; i++) {
+        // Filas: cada fila representa una ciudad origen (se omiten las eliminadas)
+        for (int i = 0; i < numVertices; i++) {
+            if (ciudades.get(i) == null) {
+                continue;
+            }
             System.out.print(String.format("%15s", ciudades.get(i)));
-            for (int j = 0; j < numCiudades; j++) {
+            for (int j = 0; j < numVertices; j++) {
+                if (ciudades.get(j) == null) {
+                    continue;
+                }
                 if (matriz[tipoClima][i][j] == INFINITO) {
                     System.out.print(String.format("%15s", "∞"));
                 } else {
@@ -280,26 +614,245 @@ public class GrafoFloyd {
     //----------------------------------------------------------------------
     // MÉTODOS GETTER PARA ACCESO A DATOS DEL GRAFO
     //----------------------------------------------------------------------
+    // Ciudades activas en orden de handle. Tras eliminar ciudades la posición en
+    // esta lista deja de coincidir con el handle: usar obtenerIndice en su lugar.
     public List<String> getCiudades() {
-        return new ArrayList<>(ciudades);  // Retorna copia para evitar modificaciones externas
+        List<String> activas = new ArrayList<>(numCiudades);  // Copia para evitar modificaciones externas
+        for (String ciudad : ciudades) {
+            if (ciudad != null) {
+                activas.add(ciudad);
+            }
+        }
+        return activas;
     }
 
     public int getNumCiudades() {
         return numCiudades;
     }
+
+    // Número de handles asignados (activos y libres); es la dimensión de las matrices de ResultadoFloyd
+    public int getNumVertices() {
+        return numVertices;
+    }
+
+    // Versión actual del grafo; cambia con cada modificación
+    public long getVersion() {
+        return version;
+    }
+
+    // Handle de una ciudad, -1 si no existe. Es válido mientras la ciudad exista;
+    // tras eliminarla puede reasignarse a otra ciudad agregada después
+    public int obtenerIndice(String ciudad) {
+        Integer indice = ciudadIndice.get(ciudad);
+        return indice == null ? -1 : indice;
+    }
+
+    // Nombre de la ciudad que ocupa hoy un handle; null si está libre o fuera de rango.
+    // Un handle de una ciudad eliminada puede devolver otra ciudad si se reutilizó
+    public String obtenerNombre(int indice) {
+        if (indice < 0 || indice >= numVertices) {
+            return null;
+        }
+        return ciudades.get(indice);
+    }
     
     //----------------------------------------------------------------------
     // CLASE INTERNA: ResultadoFloyd
     // Encapsula los resultados del algoritmo de Floyd-Warshall
-    // Contiene matriz de distancias mínimas y matriz de rutas
+    // Contiene matriz de distancias mínimas y matriz de rutas, junto con el
+    // clima y la versión del grafo con que se calcularon (-1 si se desconocen)
     //----------------------------------------------------------------------
     public static class ResultadoFloyd {
         public final double[][] distancias; 
         public final int[][] siguiente;      
+        public final int tipoClima;
+        public final long version;
 
         public ResultadoFloyd(double[][] distancias, int[][] siguiente) {
+            this(distancias, siguiente, -1, -1);
+        }
+
+        public ResultadoFloyd(double[][] distancias, int[][] siguiente, int tipoClima, long version) {
             this.distancias = distancias;
             this.siguiente = siguiente;
+            this.tipoClima = tipoClima;
+            this.version = version;
+        }
+    }
+
+    //----------------------------------------------------------------------
+    // CLASE INTERNA: IndiceCercania
+    // Para un ResultadoFloyd guarda, por cada ciudad origen, los destinos
+    // alcanzables ordenados por distancia. Responde "k ciudades más cercanas"
+    // y "alcanzables en tiempo T" en O(log V + k) sin recorrer ni ordenar la
+    // fila completa en cada consulta. Las filas se ordenan en paralelo al
+    // construir el índice; tras actualizar() sólo se reordenan, al consultarse,
+    // las filas cuyas distancias cambiaron. No es seguro para uso concurrente.
+    //----------------------------------------------------------------------
+    public static class IndiceCercania {
+        private ResultadoFloyd resultado;
+        private int[][] destinos;         // Handles ordenados por distancia (sin el origen ni inalcanzables)
+        private double[][] distancias;    // Distancia de cada destino, en orden no decreciente
+        private boolean[] pendiente;      // Filas que deben reordenarse antes de consultarse
+
+        public IndiceCercania(ResultadoFloyd resultado) {
+            int n = resultado.distancias.length;
+            this.resultado = resultado;
+            this.destinos = new int[n][];
+            this.distancias = new double[n][];
+            this.pendiente = new boolean[n];
+            IntStream.range(0, n).parallel().forEach(this::ordenarFila);
+        }
+
+        //------------------------------------------------------------------
+        // Reemplaza el resultado indexado marcando como pendientes sólo las
+        // filas que cambiaron. Cuesta O(V²) comparaciones, sin ordenar nada.
+        //------------------------------------------------------------------
+        public void actualizar(ResultadoFloyd nuevo) {
+            int anterior = resultado.distancias.length;
+            int n = nuevo.distancias.length;
+            if (n < anterior) {
+                // El grafo se recargó: todas las filas quedan pendientes
+                destinos = new int[n][];
+                distancias = new double[n][];
+                pendiente = new boolean[n];
+                Arrays.fill(pendiente, true);
+                resultado = nuevo;
+                return;
+            }
+            if (n > anterior) {
+                destinos = Arrays.copyOf(destinos, n);
+                distancias = Arrays.copyOf(distancias, n);
+                pendiente = Arrays.copyOf(pendiente, n);
+            }
+            for (int i = 0; i < n; i++) {
+                if (i >= anterior || filaCambio(i, resultado.distancias[i], nuevo.distancias[i])) {
+                    pendiente[i] = true;
+                }
+            }
+            resultado = nuevo;
+        }
+
+        // Las k ciudades más cercanas al origen (menos si no hay tantas alcanzables)
+        public int[] kCercanas(int origen, int k) {
+            prepararFila(origen);
+            return Arrays.copyOf(destinos[origen], Math.max(0, Math.min(k, destinos[origen].length)));
+        }
+
+        // Ciudades alcanzables desde el origen con distancia menor o igual a 'tiempo'
+        public int[] alcanzables(int origen, double tiempo) {
+            prepararFila(origen);
+            double[] fila = distancias[origen];
+            // Búsqueda binaria de la primera distancia mayor que 'tiempo'
+            int bajo = 0;
+            int alto = fila.length;
+            while (bajo < alto) {
+                int medio = (bajo + alto) >>> 1;
+                if (fila[medio] <= tiempo) {
+                    bajo = medio + 1;
+                } else {
+                    alto = medio;
+                }
+            }
+            return Arrays.copyOf(destinos[origen], bajo);
+        }
+
+        public ResultadoFloyd getResultado() {
+            return resultado;
+        }
+
+        private void prepararFila(int origen) {
+            if (pendiente[origen]) {
+                ordenarFila(origen);
+            }
+        }
+
+        private boolean filaCambio(int i, double[] vieja, double[] nueva) {
+            if (vieja == nueva) {
+                return false;
+            }
+            for (int j = 0; j < vieja.length; j++) {
+                if (vieja[j] != nueva[j]) {
+                    return true;
+                }
+            }
+            // Columnas de ciudades nuevas: sólo importan si son alcanzables
+            for (int j = vieja.length; j < nueva.length; j++) {
+                if (j != i && nueva[j] != INFINITO) {
+                    return true;
+                }
+            }
+            return false;
+        }
+
+        private void ordenarFila(int origen) {
+            double[] fila = resultado.distancias[origen];
+            int total = 0;
+            for (int j = 0; j < fila.length; j++) {
+                if (j != origen && fila[j] != INFINITO) {
+                    total++;
+                }
+            }
+
+            int[] indices = new int[total];
+            double[] valores = new double[total];
+            int pos = 0;
+            for (int j = 0; j < fila.length; j++) {
+                if (j != origen && fila[j] != INFINITO) {
+                    indices[pos] = j;
+                    valores[pos] = fila[j];
+                    pos++;
+                }
+            }
+            ordenar(valores, indices, 0, total - 1);
+
+            destinos[origen] = indices;
+            distancias[origen] = valores;
+            pendiente[origen] = false;
+        }
+
+        // Quicksort sobre arreglos paralelos para no crear objetos por destino;
+        // los empates se ordenan por handle para que el resultado sea determinista
+        private static void ordenar(double[] valores, int[] indices, int inicio, int fin) {
+            while (inicio < fin) {
+                if (fin - inicio < 16) {
+                    for (int a = inicio + 1; a <= fin; a++) {
+                        for (int b = a; b > inicio && menor(valores, indices, b, b - 1); b--) {
+                            intercambiar(valores, indices, b, b - 1);
+                        }
+                    }
+                    return;
+                }
+                intercambiar(valores, indices, (inicio + fin) >>> 1, fin);
+                int corte = inicio;
+                for (int a = inicio; a < fin; a++) {
+                    if (menor(valores, indices, a, fin)) {
+                        intercambiar(valores, indices, a, corte++);
+                    }
+                }
+                intercambiar(valores, indices, corte, fin);
+                // Recursión sobre la parte menor para acotar la pila
+                if (corte - inicio < fin - corte) {
+                    ordenar(valores, indices, inicio, corte - 1);
+                    inicio = corte + 1;
+                } else {
+                    ordenar(valores, indices, corte + 1, fin);
+                    fin = corte - 1;
+                }
+            }
+        }
+
+        private static boolean menor(double[] valores, int[] indices, int a, int b) {
+            return valores[a] < valores[b] || (valores[a] == valores[b] && indices[a] < indices[b]);
+        }
+
+        private static void intercambiar(double[] valores, int[] indices, int a, int b) {
+            double valor = valores[a];
+            valores[a] = valores[b];
+            valores[b] = valor;
+            int indice = indices[a];
+            indices[a] = indices[b];
+            indices[b] = indice;
         }
     }
 }
@@ -316,6 +869,11 @@ class ProgramaPrincipal {
     private static GrafoFloyd.ResultadoFloyd resultado;              
 
     public static void main(String[] args) {
+        // Modo no interactivo: --lote <archivo|-> [--formato csv|jsonl] [--grafo archivo] [--salida archivo]
+        if (args.length > 0) {
+            System.exit(ModoLote.ejecutar(args));
+        }
+        
         try {
             System.out.println("=== Sistema de Optimización Logística ===");
             System.out.println("Cargando grafo desde archivo guategrafo.txt...");
@@ -386,20 +944,20 @@ class ProgramaPrincipal {
         System.out.print("Ingrese ciudad destino: ");
         String destino = scanner.nextLine();
 
-        // Obtener el camino usando la matriz de rutas
-        List<String> camino = grafo.obtenerCamino(origen, destino, resultado.siguiente);
+        // Resolver los handles una sola vez y consultar por índice
+        int indiceOrigen = grafo.obtenerIndice(origen);
+        int indiceDestino = grafo.obtenerIndice(destino);
         
-        if (camino == null) {
-            System.out.println("No existe ruta entre " + origen + " y " + destino);
+        if (indiceOrigen == -1 || indiceDestino == -1) {
+            System.out.println("Una o ambas ciudades no existen.");
             return;
         }
 
-        // Calcular y mostrar la distancia total
-        int indiceOrigen = grafo.getCiudades().indexOf(origen);
-        int indiceDestino = grafo.getCiudades().indexOf(destino);
+        // Obtener el camino usando la matriz de rutas
+        List<String> camino = grafo.obtenerCamino(indiceOrigen, indiceDestino, resultado.siguiente);
         
-        if (indiceOrigen == -1 || indiceDestino == -1) {
-            System.out.println("Una o ambas ciudades no existen.");
+        if (camino == null) {
+            System.out.println("No existe ruta entre " + origen + " y " + destino);
             return;
         }
 
@@ -429,6 +987,8 @@ class ProgramaPrincipal {
         System.out.println("1. Interrumpir tráfico entre ciudades");
         System.out.println("2. Establecer nueva conexión");
         System.out.println("3. Cambiar condición climática");
+        System.out.println("4. Agregar ciudad");
+        System.out.println("5. Eliminar ciudad");
         System.out.print("Seleccione una opción: ");
         
         int opcion = leerOpcion();
@@ -443,17 +1003,49 @@ class ProgramaPrincipal {
             case 3:
                 cambiarClima();
                 break;
+            case 4:
+                agregarCiudad();
+                break;
+            case 5:
+                eliminarCiudad();
+                break;
             default:
                 System.out.println("Opción no válida.");
                 return;
         }
         
         // Recalcular rutas y centro después de modificaciones
-        resultado = grafo.aplicarFloyd(0);
+        // (incremental si sólo se agregaron ciudades desde el último cálculo)
+        resultado = grafo.actualizarFloyd(0, resultado);
         String nuevoCentro = grafo.calcularCentro(resultado.distancias);
         System.out.println("Nuevo centro del grafo: " + nuevoCentro);
     }
     
+    private static void agregarCiudad() {
+        System.out.print("Nombre de la nueva ciudad: ");
+        String nombre = scanner.nextLine().trim();
+        if (nombre.isEmpty() || nombre.contains(" ")) {
+            System.out.println("Error: El nombre no puede estar vacío ni contener espacios.");
+            return;
+        }
+        
+        int indice = grafo.agregarCiudad(nombre);
+        System.out.println("Ciudad " + nombre + " disponible (índice " + indice + ").");
+        System.out.println("Use 'Establecer nueva conexión' para conectarla.");
+    }
+    
+    private static void eliminarCiudad() {
+        System.out.print("Ciudad a eliminar: ");
+        String nombre = scanner.nextLine();
+        
+        if (grafo.obtenerIndice(nombre) == -1) {
+            System.out.println("La ciudad no existe en el grafo.");
+            return;
+        }
+        grafo.eliminarCiudad(nombre);
+        System.out.println("Ciudad " + nombre + " eliminada.");
+    }
+    
     private static void interrumpirTrafico() {
         System.out.print("Ciudad 1: ");
         String ciudad1 = scanner.nextLine();
@@ -509,4 +1101,4 @@ class ProgramaPrincipal {
             System.out.println("Error: Ingrese un número válido.");
         }
     }
-}
\ No newline at end of file
+}
@@ -5,6 +5,9 @@ import static org.junit.jupiter.api.Assertions.*;
 import java.io.IOException;
 import java.io.FileWriter;
 import java.io.File;
+import java.io.BufferedReader;
+import java.io.StringReader;
+import java.io.StringWriter;
 import java.util.List;
 
 public class GrafoFloydTest {
@@ -137,6 +140,270 @@ public class GrafoFloydTest {
         assertEquals(20.0, resultado.distancias[indiceA][indiceC], 0.01);
     }
     
+    @Test
+    @DisplayName("Test agregar ciudad con actualización incremental")
+    void testAgregarCiudad() {
+        GrafoFloyd.ResultadoFloyd anterior = grafo.aplicarFloyd(0);
+        int indiceA = grafo.obtenerIndice("CiudadA");
+        int indiceC = grafo.obtenerIndice("CiudadC");
+        
+        int indiceD = grafo.agregarCiudad("CiudadD");
+        grafo.agregarConexion("CiudadC", "CiudadD", 2, 3, 4, 6);
+        grafo.agregarConexion("CiudadD", "CiudadA", 1, 2, 3, 5);
+        
+        // Los handles existentes no cambian y agregar de nuevo devuelve el mismo
+        assertEquals(indiceA, grafo.obtenerIndice("CiudadA"));
+        assertEquals(indiceD, grafo.agregarCiudad("CiudadD"));
+        assertEquals(4, grafo.getNumCiudades());
+        
+        GrafoFloyd.ResultadoFloyd incremental = grafo.actualizarFloyd(0, anterior);
+        GrafoFloyd.ResultadoFloyd completo = grafo.aplicarFloyd(0);
+        
+        // C->A mejora pasando por D: 2 + 1 = 3 en lugar de 18
+        assertEquals(3.0, incremental.distancias[indiceC][indiceA], 0.01);
+        for (int i = 0; i < grafo.getNumVertices(); i++) {
+            for (int j = 0; j < grafo.getNumVertices(); j++) {
+                assertEquals(completo.distancias[i][j], incremental.distancias[i][j], 0.01);
+            }
+        }
+        
+        List<String> camino = grafo.obtenerCamino(indiceC, indiceA, incremental.siguiente);
+        assertEquals(List.of("CiudadC", "CiudadD", "CiudadA"), camino);
+    }
+    
+    @Test
+    @DisplayName("Test conectar ciudad nueva sin recálculo completo")
+    void testConectarCiudadIncremental() {
+        GrafoFloyd.ResultadoFloyd resultado = grafo.aplicarFloyd(0);
+        int completos = grafo.getRecalculosCompletos();
+        
+        // Flujo del menú: agregar ciudad, recalcular, conectarla y volver a recalcular
+        grafo.agregarCiudad("CiudadD");
+        resultado = grafo.actualizarFloyd(0, resultado);
+        grafo.agregarConexion("CiudadC", "CiudadD", 2, 3, 4, 6);
+        grafo.agregarConexion("CiudadD", "CiudadA", 1, 2, 3, 5);
+        resultado = grafo.actualizarFloyd(0, resultado);
+        // Una conexión existente que se acorta también es incremental
+        grafo.agregarConexion("CiudadA", "CiudadB", 4, 15, 20, 50);
+        resultado = grafo.actualizarFloyd(0, resultado);
+        
+        assertEquals(completos, grafo.getRecalculosCompletos());
+        
+        GrafoFloyd.ResultadoFloyd completo = grafo.aplicarFloyd(0);
+        for (int i = 0; i < grafo.getNumVertices(); i++) {
+            for (int j = 0; j < grafo.getNumVertices(); j++) {
+                assertEquals(completo.distancias[i][j], resultado.distancias[i][j], 0.01);
+            }
+        }
+        int indiceC = grafo.obtenerIndice("CiudadC");
+        int indiceB = grafo.obtenerIndice("CiudadB");
+        // C->D->A->B = 2 + 1 + 4
+        assertEquals(7.0, resultado.distancias[indiceC][indiceB], 0.01);
+        assertEquals(List.of("CiudadC", "CiudadD", "CiudadA", "CiudadB"),
+                     grafo.obtenerCamino(indiceC, indiceB, resultado.siguiente));
+        
+        // Una conexión más lenta sí obliga al cálculo completo
+        completos = grafo.getRecalculosCompletos();
+        grafo.eliminarConexion("CiudadD", "CiudadA");
+        grafo.actualizarFloyd(0, resultado);
+        assertEquals(completos + 1, grafo.getRecalculosCompletos());
+    }
+    
+    @Test
+    @DisplayName("Test crecimiento de capacidad")
+    void testCrecimientoCapacidad() {
+        String anterior = "CiudadC";
+        for (int i = 0; i < 40; i++) {
+            String nueva = "Deposito" + i;
+            grafo.agregarCiudad(nueva);
+            grafo.agregarConexion(anterior, nueva, 1, 1, 1, 1);
+            anterior = nueva;
+        }
+        
+        GrafoFloyd.ResultadoFloyd resultado = grafo.aplicarFloyd(0);
+        int indiceA = grafo.obtenerIndice("CiudadA");
+        int indiceFinal = grafo.obtenerIndice("Deposito39");
+        
+        assertEquals(43, grafo.getNumCiudades());
+        // A->B->C = 15 más 40 tramos de 1
+        assertEquals(55.0, resultado.distancias[indiceA][indiceFinal], 0.01);
+    }
+    
+    @Test
+    @DisplayName("Test eliminar ciudad")
+    void testEliminarCiudad() {
+        int indiceC = grafo.obtenerIndice("CiudadC");
+        
+        grafo.eliminarCiudad("CiudadB");
+        GrafoFloyd.ResultadoFloyd resultado = grafo.aplicarFloyd(0);
+        
+        int indiceA = grafo.obtenerIndice("CiudadA");
+        assertEquals(-1, grafo.obtenerIndice("CiudadB"));
+        assertEquals(indiceC, grafo.obtenerIndice("CiudadC"));
+        assertEquals(2, grafo.getNumCiudades());
+        assertFalse(grafo.getCiudades().contains("CiudadB"));
+        
+        // Sin B la ruta A->C vuelve a ser la directa
+        assertEquals(20.0, resultado.distancias[indiceA][indiceC], 0.01);
+        assertNotEquals("CiudadB", grafo.calcularCentro(resultado.distancias));
+        
+        // Los ciclos agregar/eliminar reutilizan el handle liberado sin hacer crecer el grafo
+        int vertices = grafo.getNumVertices();
+        for (int i = 0; i < 10; i++) {
+            grafo.agregarCiudad("Temporal" + i);
+            grafo.eliminarCiudad("Temporal" + i);
+        }
+        int indiceD = grafo.agregarCiudad("CiudadD");
+        assertEquals(vertices, grafo.getNumVertices());
+        assertEquals("CiudadD", grafo.obtenerNombre(indiceD));
+        assertNull(grafo.obtenerNombre(-1));
+        assertNull(grafo.obtenerNombre(grafo.getNumVertices()));
+        assertEquals(indiceA, grafo.obtenerIndice("CiudadA"));
+        assertEquals(indiceC, grafo.obtenerIndice("CiudadC"));
+        
+        // La ciudad que ocupa el handle reutilizado empieza sin conexiones
+        resultado = grafo.aplicarFloyd(0);
+        assertNull(grafo.obtenerCamino(indiceA, indiceD, resultado.siguiente));
+    }
+    
+    @Test
+    @DisplayName("Test índice de cercanía")
+    void testIndiceCercania() {
+        GrafoFloyd.ResultadoFloyd resultado = grafo.aplicarFloyd(0);
+        GrafoFloyd.IndiceCercania indice = new GrafoFloyd.IndiceCercania(resultado);
+        
+        int indiceA = grafo.obtenerIndice("CiudadA");
+        int indiceB = grafo.obtenerIndice("CiudadB");
+        int indiceC = grafo.obtenerIndice("CiudadC");
+        
+        // Desde A: B a 10, C a 15 (por B)
+        assertArrayEquals(new int[] {indiceB}, indice.kCercanas(indiceA, 1));
+        assertArrayEquals(new int[] {indiceB, indiceC}, indice.kCercanas(indiceA, 5));
+        // Desde B: C a 5, A a 23
+        assertArrayEquals(new int[] {indiceC}, indice.alcanzables(indiceB, 20));
+        assertArrayEquals(new int[] {indiceC, indiceA}, indice.alcanzables(indiceB, 23));
+        assertEquals(0, indice.alcanzables(indiceB, 1).length);
+        assertEquals(0, indice.kCercanas(indiceB, 0).length);
+        
+        // Tras eliminar A->B, desde A sólo queda C (20) y desde C ya no se llega a B
+        grafo.eliminarConexion("CiudadA", "CiudadB");
+        indice.actualizar(grafo.actualizarFloyd(0, resultado));
+        
+        assertArrayEquals(new int[] {indiceC}, indice.kCercanas(indiceA, 5));
+        assertArrayEquals(new int[] {indiceA}, indice.kCercanas(indiceC, 5));
+        assertArrayEquals(new int[] {indiceC, indiceA}, indice.kCercanas(indiceB, 5));
+    }
+    
+    @Test
+    @DisplayName("Test modo lote")
+    void testModoLote() throws IOException {
+        String comandos = "ruta CiudadA CiudadC\n"
+                        + "# eliminar A->B obliga a recalcular antes de la siguiente consulta\n"
+                        + "desconectar CiudadA CiudadB\n"
+                        + "ruta CiudadA CiudadC\n"
+                        + "ruta CiudadA CiudadC 3\n"
+                        + "ruta CiudadA CiudadX\n";
+        StringWriter salida = new StringWriter();
+        
+        ModoLote modo = new ModoLote(grafo, salida, "csv");
+        modo.procesar(new BufferedReader(new StringReader(comandos)));
+        
+        String[] lineas = salida.toString().split("\n");
+        assertEquals(0, modo.getErrores());
+        assertEquals(5, lineas.length);
+        assertEquals("ruta,CiudadA,CiudadC,Normal,ok,15.0,CiudadA>CiudadB>CiudadC", lineas[1]);
+        assertEquals("ruta,CiudadA,CiudadC,Normal,ok,20.0,CiudadA>CiudadC", lineas[2]);
+        assertEquals("ruta,CiudadA,CiudadC,Tormenta,ok,80.0,CiudadA>CiudadC", lineas[3]);
+        assertEquals("ruta,CiudadA,CiudadX,Normal,ciudad_desconocida,,", lineas[4]);
+    }
+    
+    @Test
+    @DisplayName("Test modo lote en formato JSONL")
+    void testModoLoteJsonl() throws IOException {
+        String comandos = "ruta CiudadA CiudadC\n"
+                        + "cercanas CiudadA 2\n"
+                        + "cercanas CiudadB 0\n"
+                        + "ruta Q\u0001\"z CiudadX\n"
+                        + "eliminar CiudadA\n"
+                        + "eliminar CiudadB\n"
+                        + "eliminar CiudadC\n"
+                        + "centro\n";
+        StringWriter salida = new StringWriter();
+        
+        ModoLote modo = new ModoLote(grafo, salida, "jsonl");
+        modo.procesar(new BufferedReader(new StringReader(comandos)));
+        
+        String[] lineas = salida.toString().split("\n");
+        assertEquals(0, modo.getErrores());
+        assertEquals(5, lineas.length);
+        assertEquals("{\"tipo\":\"ruta\",\"origen\":\"CiudadA\",\"destino\":\"CiudadC\",\"clima\":\"Normal\","
+                   + "\"estado\":\"ok\",\"distancia\":15.0,\"camino\":[\"CiudadA\",\"CiudadB\",\"CiudadC\"]}", lineas[0]);
+        assertEquals("{\"tipo\":\"cercanas\",\"origen\":\"CiudadA\",\"clima\":\"Normal\",\"estado\":\"ok\","
+                   + "\"destinos\":[{\"ciudad\":\"CiudadB\",\"distancia\":10.0},{\"ciudad\":\"CiudadC\",\"distancia\":15.0}]}",
+                     lineas[1]);
+        assertEquals("{\"tipo\":\"cercanas\",\"origen\":\"CiudadB\",\"clima\":\"Normal\",\"estado\":\"ok\","
+                   + "\"destinos\":[]}", lineas[2]);
+        // Comillas y caracteres de control escapados
+        assertEquals("{\"tipo\":\"ruta\",\"origen\":\"Q\\u0001\\\"z\",\"destino\":\"CiudadX\",\"clima\":\"Normal\","
+                   + "\"estado\":\"ciudad_desconocida\"}", lineas[3]);
+        // Sin ciudades no hay centro
+        assertEquals("{\"tipo\":\"centro\",\"clima\":\"Normal\",\"centro\":null}", lineas[4]);
+    }
+    
+    @Test
+    @DisplayName("Test modo lote con consultas de cercanía sin resultados")
+    void testModoLoteCercanasVacias() throws IOException {
+        String comandos = "cercanas CiudadB 0\n"
+                        + "alcance CiudadC 5\n"
+                        + "agregar CiudadZ\n"
+                        + "cercanas CiudadZ 3\n"
+                        + "cercanas CiudadA 1\n";
+        StringWriter salida = new StringWriter();
+        
+        ModoLote modo = new ModoLote(grafo, salida, "csv");
+        modo.procesar(new BufferedReader(new StringReader(comandos)));
+        
+        // Cada consulta sin resultados deja una fila 'ok' con destino y distancia vacíos
+        String[] lineas = salida.toString().split("\n");
+        assertEquals(0, modo.getErrores());
+        assertEquals(5, lineas.length);
+        assertEquals("cercanas,CiudadB,,Normal,ok,,", lineas[1]);
+        assertEquals("alcance,CiudadC,,Normal,ok,,", lineas[2]);
+        assertEquals("cercanas,CiudadZ,,Normal,ok,,", lineas[3]);
+        assertEquals("cercanas,CiudadA,CiudadB,Normal,ok,10.0,", lineas[4]);
+    }
+    
+    @Test
+    @DisplayName("Test modo lote rechaza K negativo")
+    void testModoLoteCercanasKNegativo() throws IOException {
+        StringWriter salida = new StringWriter();
+        
+        ModoLote modo = new ModoLote(grafo, salida, "csv");
+        modo.procesar(new BufferedReader(new StringReader("cercanas CiudadB -1\nalcance CiudadB -2\n")));
+        
+        assertEquals(2, modo.getErrores());
+        assertEquals(1, salida.toString().split("\n").length);  // Sólo el encabezado
+    }
+    
+    @Test
+    @DisplayName("Test modo lote con comas y comillas en nombres")
+    void testModoLoteCsvConComillas() throws IOException {
+        String comandos = "agregar A,x\n"
+                        + "agregar B\"y\n"
+                        + "conectar A,x CiudadA 1 1 1 1\n"
+                        + "conectar CiudadC B\"y 2 2 2 2\n"
+                        + "ruta A,x B\"y\n";
+        StringWriter salida = new StringWriter();
+        
+        ModoLote modo = new ModoLote(grafo, salida, "csv");
+        modo.procesar(new BufferedReader(new StringReader(comandos)));
+        
+        String[] lineas = salida.toString().split("\n");
+        assertEquals(0, modo.getErrores());
+        // A,x -> A -> B -> C -> B"y = 1 + 10 + 5 + 2
+        assertEquals("ruta,\"A,x\",\"B\"\"y\",Normal,ok,18.0,\"A,x>CiudadA>CiudadB>CiudadC>B\"\"y\"", lineas[1]);
+    }
+    
     @Test
     @DisplayName("Test diferentes condiciones climáticas")
     void testDiferentesClimas() {
@@ -0,0 +1,491 @@
+/**
+ * SISTEMA DE OPTIMIZACIÓN LOGÍSTICA - ALGORITMO DE FLOYD-WARSHALL
+ * Autores: Denil Parada , Harry Méndez 
+ * Universidad del Valle de Guatemala
+ * Facultad de Ingeniería - Departamento de Ciencias de la Computación
+ * Hoja de Trabajo No. 10
+ */
+
+//==========================================================================
+// CLASE: ModoLote
+// DESCRIPCIÓN: Procesa comandos de consulta y edición en orden desde un
+//              archivo o stdin, sin menú. Los recálculos de Floyd se difieren
+//              hasta que una consulta los necesita, de modo que consultas
+//              consecutivas comparten el mismo resultado. La salida va por un
+//              Writer con buffer en formato CSV o JSONL.
+//
+// Comandos (uno por línea, '#' inicia comentario):
+//   ruta ORIGEN DESTINO [clima]
+//   centro [clima]
+//   cercanas ORIGEN K [clima]
+//   alcance ORIGEN TIEMPO [clima]
+//   conectar CIUDAD1 CIUDAD2 normal lluvia nieve tormenta
+//   desconectar CIUDAD1 CIUDAD2
+//   agregar CIUDAD
+//   eliminar CIUDAD
+//==========================================================================
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+
+class ModoLote {
+    private static final String[] NOMBRES_CLIMA = {"Normal", "Lluvia", "Nieve", "Tormenta"};
+    
+    private final GrafoFloyd grafo;
+    private final Writer salida;
+    private final boolean jsonl;
+    private final GrafoFloyd.ResultadoFloyd[] resultados = new GrafoFloyd.ResultadoFloyd[4];
+    private final GrafoFloyd.IndiceCercania[] indices = new GrafoFloyd.IndiceCercania[4];
+    private final StringBuilder linea = new StringBuilder();
+    private final StringBuilder camino = new StringBuilder();
+    private int numeroLinea;
+    private int errores;
+
+    public ModoLote(GrafoFloyd grafo, Writer salida, String formato) {
+        if (!formatoValido(formato)) {
+            throw new IllegalArgumentException("Formato no soportado: " + formato);
+        }
+        this.grafo = grafo;
+        this.salida = salida;
+        this.jsonl = formato.equals("jsonl");
+    }
+    
+    //----------------------------------------------------------------------
+    // PUNTO DE ENTRADA DESDE LA LÍNEA DE COMANDOS
+    // Retorna: código de salida del proceso (0 si no hubo errores)
+    //----------------------------------------------------------------------
+    public static int ejecutar(String[] args) {
+        String lote = null;
+        String formato = "csv";
+        String archivoGrafo = "guategrafo.txt";
+        String archivoSalida = null;
+        
+        for (int i = 0; i < args.length; i++) {
+            String valor = (i + 1 < args.length) ? args[i + 1] : null;
+            switch (args[i]) {
+                case "--lote":    lote = valor; i++; break;
+                case "--formato": formato = valor; i++; break;
+                case "--grafo":   archivoGrafo = valor; i++; break;
+                case "--salida":  archivoSalida = valor; i++; break;
+                default:
+                    System.err.println("Argumento no reconocido: " + args[i]);
+                    return 2;
+            }
+        }
+        if (lote == null || formato == null || archivoGrafo == null) {
+            System.err.println("Uso: --lote <archivo|-> [--formato csv|jsonl] [--grafo archivo] [--salida archivo]");
+            return 2;
+        }
+        // Validar antes de cargar el grafo o abrir (y truncar) el archivo de salida
+        if (!formatoValido(formato)) {
+            System.err.println("Formato no soportado: " + formato);
+            return 2;
+        }
+        
+        GrafoFloyd grafo = new GrafoFloyd();
+        try {
+            grafo.cargarDesdeArchivo(archivoGrafo);
+        } catch (IOException e) {
+            System.err.println("Error al cargar el archivo: " + e.getMessage());
+            return 1;
+        }
+        
+        // Entrada y salida en UTF-8 tanto para archivos como para stdin/stdout
+        try (BufferedReader entrada = new BufferedReader(new InputStreamReader(
+                 lote.equals("-") ? System.in : new FileInputStream(lote), StandardCharsets.UTF_8));
+             Writer salida = new BufferedWriter(new OutputStreamWriter(
+                 archivoSalida == null ? System.out : new FileOutputStream(archivoSalida),
+                 StandardCharsets.UTF_8), 1 << 16)) {
+            ModoLote modo = new ModoLote(grafo, salida, formato);
+            modo.procesar(entrada);
+            return modo.getErrores() == 0 ? 0 : 1;
+        } catch (IOException e) {
+            System.err.println("Error de entrada/salida: " + e.getMessage());
+            return 1;
+        }
+    }
+    
+    private static boolean formatoValido(String formato) {
+        return formato.equals("csv") || formato.equals("jsonl");
+    }
+    
+    //----------------------------------------------------------------------
+    // PROCESAR TODOS LOS COMANDOS DE LA ENTRADA EN ORDEN
+    // Los errores de un comando se reportan en stderr y no detienen el lote
+    //----------------------------------------------------------------------
+    public void procesar(BufferedReader entrada) throws IOException {
+        if (!jsonl) {
+            salida.write("tipo,origen,destino,clima,estado,distancia,camino\n");
+        }
+        
+        String texto;
+        while ((texto = entrada.readLine()) != null) {
+            numeroLinea++;
+            int comentario = texto.indexOf('#');
+            if (comentario >= 0) {
+                texto = texto.substring(0, comentario);
+            }
+            texto = texto.trim();
+            if (texto.isEmpty()) {
+                continue;
+            }
+            
+            try {
+                procesarComando(texto.split("\\s+"));
+            } catch (NumberFormatException e) {
+                reportarError("valor numérico inválido (" + e.getMessage() + ")");
+            }
+        }
+        salida.flush();
+    }
+    
+    private void procesarComando(String[] partes) throws IOException {
+        switch (partes[0]) {
+            case "ruta":
+                if (partes.length < 3 || partes.length > 4) {
+                    reportarError("uso: ruta ORIGEN DESTINO [clima]");
+                    return;
+                }
+                consultarRuta(partes[1], partes[2], leerClima(partes, 3));
+                break;
+            case "centro":
+                if (partes.length > 2) {
+                    reportarError("uso: centro [clima]");
+                    return;
+                }
+                consultarCentro(leerClima(partes, 1));
+                break;
+            case "cercanas":
+                if (partes.length < 3 || partes.length > 4) {
+                    reportarError("uso: cercanas ORIGEN K [clima]");
+                    return;
+                }
+                int k = Integer.parseInt(partes[2]);
+                if (k < 0) {
+                    reportarError("uso: cercanas ORIGEN K [clima]");
+                    return;
+                }
+                consultarCercanas(partes[1], k, leerClima(partes, 3));
+                break;
+            case "alcance":
+                if (partes.length < 3 || partes.length > 4) {
+                    reportarError("uso: alcance ORIGEN TIEMPO [clima]");
+                    return;
+                }
+                double tiempo = Double.parseDouble(partes[2]);
+                if (!(tiempo >= 0)) {
+                    reportarError("uso: alcance ORIGEN TIEMPO [clima]");
+                    return;
+                }
+                consultarAlcance(partes[1], tiempo, leerClima(partes, 3));
+                break;
+            case "conectar":
+                if (partes.length != 7) {
+                    reportarError("uso: conectar CIUDAD1 CIUDAD2 normal lluvia nieve tormenta");
+                    return;
+                }
+                if (existen(partes[1], partes[2])) {
+                    grafo.agregarConexion(partes[1], partes[2],
+                        Double.parseDouble(partes[3]), Double.parseDouble(partes[4]),
+                        Double.parseDouble(partes[5]), Double.parseDouble(partes[6]));
+                }
+                break;
+            case "desconectar":
+                if (partes.length != 3) {
+                    reportarError("uso: desconectar CIUDAD1 CIUDAD2");
+                    return;
+                }
+                if (existen(partes[1], partes[2])) {
+                    grafo.eliminarConexion(partes[1], partes[2]);
+                }
+                break;
+            case "agregar":
+                if (partes.length != 2) {
+                    reportarError("uso: agregar CIUDAD");
+                    return;
+                }
+                grafo.agregarCiudad(partes[1]);
+                break;
+            case "eliminar":
+                if (partes.length != 2) {
+                    reportarError("uso: eliminar CIUDAD");
+                    return;
+                }
+                if (grafo.obtenerIndice(partes[1]) == -1) {
+                    reportarError("La ciudad no existe en el grafo.");
+                    return;
+                }
+                grafo.eliminarCiudad(partes[1]);
+                break;
+            default:
+                reportarError("comando desconocido '" + partes[0] + "'");
+        }
+    }
+    
+    //----------------------------------------------------------------------
+    // CONSULTAS: obtienen el resultado del clima sólo cuando lo necesitan
+    //----------------------------------------------------------------------
+    private void consultarRuta(String origen, String destino, int clima) throws IOException {
+        if (clima < 0) {
+            return;
+        }
+        int i = grafo.obtenerIndice(origen);
+        int j = grafo.obtenerIndice(destino);
+        if (i == -1 || j == -1) {
+            escribirRuta(origen, destino, i, j, clima, "ciudad_desconocida", null);
+            return;
+        }
+        
+        GrafoFloyd.ResultadoFloyd resultado = obtenerResultado(clima);
+        if (i != j && resultado.siguiente[i][j] == -1) {
+            escribirRuta(origen, destino, i, j, clima, "sin_ruta", null);
+            return;
+        }
+        escribirRuta(origen, destino, i, j, clima, "ok", resultado);
+    }
+    
+    private void consultarCentro(int clima) throws IOException {
+        if (clima < 0) {
+            return;
+        }
+        String centro = grafo.calcularCentro(obtenerResultado(clima).distancias);
+        if (jsonl) {
+            linea.append("{\"tipo\":\"centro\",\"clima\":\"").append(NOMBRES_CLIMA[clima])
+                 .append("\",\"centro\":");
+            agregarTextoJson(centro);
+            linea.append('}');
+        } else {
+            linea.append("centro,");
+            agregarCampoCsv(centro == null ? "" : centro);
+            linea.append(",,").append(NOMBRES_CLIMA[clima]).append(",ok,,");
+        }
+        emitirLinea();
+    }
+    
+    private void consultarCercanas(String origen, int k, int clima) throws IOException {
+        if (clima < 0) {
+            return;
+        }
+        int i = grafo.obtenerIndice(origen);
+        if (i == -1) {
+            escribirCercanas("cercanas", origen, clima, "ciudad_desconocida", null, null);
+            return;
+        }
+        GrafoFloyd.IndiceCercania indice = obtenerIndiceCercania(clima);
+        escribirCercanas("cercanas", origen, clima, "ok", indice.kCercanas(i, k),
+                         indice.getResultado().distancias[i]);
+    }
+    
+    private void consultarAlcance(String origen, double tiempo, int clima) throws IOException {
+        if (clima < 0) {
+            return;
+        }
+        int i = grafo.obtenerIndice(origen);
+        if (i == -1) {
+            escribirCercanas("alcance", origen, clima, "ciudad_desconocida", null, null);
+            return;
+        }
+        GrafoFloyd.IndiceCercania indice = obtenerIndiceCercania(clima);
+        escribirCercanas("alcance", origen, clima, "ok", indice.alcanzables(i, tiempo),
+                         indice.getResultado().distancias[i]);
+    }
+    
+    // El índice de cercanía de un clima se construye en la primera consulta que lo usa
+    private GrafoFloyd.IndiceCercania obtenerIndiceCercania(int clima) {
+        GrafoFloyd.ResultadoFloyd resultado = obtenerResultado(clima);
+        if (indices[clima] == null) {
+            indices[clima] = new GrafoFloyd.IndiceCercania(resultado);
+        }
+        return indices[clima];
+    }
+    
+    // Recalcula sólo si el grafo cambió desde el último resultado de ese clima;
+    // el índice de cercanía del clima, si existe, se marca para refrescar las filas afectadas
+    private GrafoFloyd.ResultadoFloyd obtenerResultado(int clima) {
+        GrafoFloyd.ResultadoFloyd resultado = resultados[clima];
+        if (resultado == null || resultado.version != grafo.getVersion()) {
+            resultado = grafo.actualizarFloyd(clima, resultado);
+            resultados[clima] = resultado;
+            if (indices[clima] != null) {
+                indices[clima].actualizar(resultado);
+            }
+        }
+        return resultado;
+    }
+    
+    //----------------------------------------------------------------------
+    // ESCRITURA DE RESULTADOS
+    // El camino se recorre directamente sobre la matriz de rutas, sin crear listas
+    //----------------------------------------------------------------------
+    private void escribirRuta(String origen, String destino, int i, int j, int clima, String estado,
+                              GrafoFloyd.ResultadoFloyd resultado) throws IOException {
+        if (jsonl) {
+            linea.append("{\"tipo\":\"ruta\",\"origen\":");
+            agregarTextoJson(origen);
+            linea.append(",\"destino\":");
+            agregarTextoJson(destino);
+            linea.append(",\"clima\":\"").append(NOMBRES_CLIMA[clima])
+                 .append("\",\"estado\":\"").append(estado).append('"');
+            if (resultado != null) {
+                linea.append(",\"distancia\":").append(resultado.distancias[i][j]).append(",\"camino\":[");
+                agregarTextoJson(origen);
+                while (i != j) {
+                    i = resultado.siguiente[i][j];
+                    linea.append(',');
+                    agregarTextoJson(grafo.obtenerNombre(i));
+                }
+                linea.append(']');
+            }
+            linea.append('}');
+        } else {
+            linea.append("ruta,");
+            agregarCampoCsv(origen);
+            linea.append(',');
+            agregarCampoCsv(destino);
+            linea.append(',').append(NOMBRES_CLIMA[clima]).append(',').append(estado).append(',');
+            if (resultado != null) {
+                linea.append(resultado.distancias[i][j]).append(',');
+                camino.append(origen);
+                while (i != j) {
+                    i = resultado.siguiente[i][j];
+                    camino.append('>').append(grafo.obtenerNombre(i));
+                }
+                agregarCampoCsv(camino);
+                camino.setLength(0);
+            } else {
+                linea.append(',');
+            }
+        }
+        emitirLinea();
+    }
+    
+    // CSV: una fila por destino, o una fila sin destino si la consulta no tiene resultados;
+    // JSONL: un objeto por consulta con la lista de destinos
+    private void escribirCercanas(String tipo, String origen, int clima, String estado,
+                                  int[] destinos, double[] fila) throws IOException {
+        if (jsonl) {
+            linea.append("{\"tipo\":\"").append(tipo).append("\",\"origen\":");
+            agregarTextoJson(origen);
+            linea.append(",\"clima\":\"").append(NOMBRES_CLIMA[clima])
+                 .append("\",\"estado\":\"").append(estado).append('"');
+            if (destinos != null) {
+                linea.append(",\"destinos\":[");
+                for (int d = 0; d < destinos.length; d++) {
+                    if (d > 0) {
+                        linea.append(',');
+                    }
+                    linea.append("{\"ciudad\":");
+                    agregarTextoJson(grafo.obtenerNombre(destinos[d]));
+                    linea.append(",\"distancia\":").append(fila[destinos[d]]).append('}');
+                }
+                linea.append(']');
+            }
+            linea.append('}');
+            emitirLinea();
+        } else if (destinos == null || destinos.length == 0) {
+            linea.append(tipo).append(',');
+            agregarCampoCsv(origen);
+            linea.append(",,").append(NOMBRES_CLIMA[clima]).append(',').append(estado).append(",,");
+            emitirLinea();
+        } else {
+            for (int d = 0; d < destinos.length; d++) {
+                linea.append(tipo).append(',');
+                agregarCampoCsv(origen);
+                linea.append(',');
+                agregarCampoCsv(grafo.obtenerNombre(destinos[d]));
+                linea.append(',').append(NOMBRES_CLIMA[clima]).append(',').append(estado).append(',')
+                     .append(fila[destinos[d]]).append(',');
+                emitirLinea();
+            }
+        }
+    }
+    
+    // Campo CSV con comillas RFC 4180 sólo si contiene ',' o '"' (los nombres no tienen espacios)
+    private void agregarCampoCsv(CharSequence texto) {
+        boolean comillas = false;
+        for (int k = 0; k < texto.length() && !comillas; k++) {
+            char c = texto.charAt(k);
+            comillas = (c == ',' || c == '"');
+        }
+        if (!comillas) {
+            linea.append(texto);
+            return;
+        }
+        linea.append('"');
+        for (int k = 0; k < texto.length(); k++) {
+            char c = texto.charAt(k);
+            if (c == '"') {
+                linea.append('"');
+            }
+            linea.append(c);
+        }
+        linea.append('"');
+    }
+    
+    private void agregarTextoJson(String texto) {
+        if (texto == null) {
+            linea.append("null");
+            return;
+        }
+        linea.append('"');
+        for (int k = 0; k < texto.length(); k++) {
+            char c = texto.charAt(k);
+            switch (c) {
+                case '"':  linea.append("\\\""); break;
+                case '\\': linea.append("\\\\"); break;
+                case '\b': linea.append("\\b"); break;
+                case '\f': linea.append("\\f"); break;
+                case '\n': linea.append("\\n"); break;
+                case '\r': linea.append("\\r"); break;
+                case '\t': linea.append("\\t"); break;
+                default:
+                    // Los nombres se separan sólo por espacios ASCII: otros controles pueden llegar aquí
+                    if (c < 0x20) {
+                        linea.append(String.format("\\u%04x", (int) c));
+                    } else {
+                        linea.append(c);
+                    }
+            }
+        }
+        linea.append('"');
+    }
+    
+    private void emitirLinea() throws IOException {
+        linea.append('\n');
+        salida.append(linea);
+        linea.setLength(0);
+    }
+    
+    //----------------------------------------------------------------------
+    // VALIDACIONES Y REPORTE DE ERRORES
+    //----------------------------------------------------------------------
+    private int leerClima(String[] partes, int posicion) {
+        if (partes.length <= posicion) {
+            return 0;  // Clima normal por defecto
+        }
+        int clima = Integer.parseInt(partes[posicion]);
+        if (clima < 0 || clima > 3) {
+            reportarError("tipo de clima no válido: " + clima);
+            return -1;
+        }
+        return clima;
+    }
+    
+    // Las ediciones con ciudades inexistentes se reportan aquí para no mezclar
+    // los mensajes de GrafoFloyd con la salida del lote
+    private boolean existen(String ciudad1, String ciudad2) {
+        if (grafo.obtenerIndice(ciudad1) == -1 || grafo.obtenerIndice(ciudad2) == -1) {
+            reportarError("Una o ambas ciudades no existen en el grafo.");
+            return false;
+        }
+        return true;
+    }
+    
+    private void reportarError(String mensaje) {
+        errores++;
+        System.err.println("Línea " + numeroLinea + ": " + mensaje);
+    }
+    
+    public int getErrores() {
+        return errores;
+    }
+}